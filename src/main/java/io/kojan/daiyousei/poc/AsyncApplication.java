@@ -0,0 +1,39 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.daiyousei.poc;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Application that does not block a thread while it runs.
+ *
+ * <p>Stdin is published as a flow of chunks, which are read from the client only as the subscriber
+ * requests them. The session ends when the returned stage completes.
+ */
+public interface AsyncApplication {
+    CompletionStage<Integer> run(
+            List<String> args,
+            Map<String, String> env,
+            Path cwd,
+            Flow.Publisher<byte[]> in,
+            PrintStream out,
+            PrintStream err);
+}
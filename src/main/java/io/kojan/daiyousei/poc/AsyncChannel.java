@@ -0,0 +1,205 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.daiyousei.poc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking socket driven by a {@link SelectorLoop}.
+ *
+ * <p>Writes never block: written bytes are queued and the loop sends them whenever the socket is
+ * writable, so a client that stops reading its output stalls only its own session and not the
+ * loop. Reading is left to the handler, which the loop runs when the socket is readable while read
+ * interest is set, and also whenever queued output was sent.
+ */
+public class AsyncChannel implements WritableByteChannel {
+    private static final int CHUNK_SIZE = 8192;
+
+    private final SocketChannel ch;
+    private final SelectorLoop loop;
+    private final AtomicLong pending = new AtomicLong();
+    private volatile Runnable handler;
+    // Guarded by this, buffers in write mode
+    private final Deque<ByteBuffer> queued = new ArrayDeque<>();
+    private boolean flushScheduled;
+    private boolean closing;
+    // Confined to the loop thread, buffers in read mode
+    private final Deque<ByteBuffer> writing = new ArrayDeque<>();
+    private SelectionKey key;
+    private boolean readInterest;
+    private boolean closed;
+
+    public AsyncChannel(SocketChannel ch, SelectorLoop loop) throws IOException {
+        ch.configureBlocking(false);
+        this.ch = ch;
+        this.loop = loop;
+    }
+
+    /** Sets handler run on the loop thread when the channel is readable or output was sent. */
+    public void setHandler(Runnable handler) {
+        this.handler = handler;
+    }
+
+    /** Returns number of written bytes not sent to the socket yet. */
+    public long pendingBytes() {
+        return pending.get();
+    }
+
+    /** Queues bytes for sending, never blocks. */
+    @Override
+    public synchronized int write(ByteBuffer src) throws IOException {
+        if (closing || !ch.isOpen()) {
+            throw new ClosedChannelException();
+        }
+        int n = src.remaining();
+        ByteBuffer last = queued.peekLast();
+        while (src.hasRemaining()) {
+            if (last == null || !last.hasRemaining()) {
+                last = ByteBuffer.allocate(Math.max(CHUNK_SIZE, src.remaining()));
+                queued.add(last);
+            }
+            int m = Math.min(last.remaining(), src.remaining());
+            last.put(src.slice(src.position(), m));
+            src.position(src.position() + m);
+        }
+        pending.addAndGet(n);
+        scheduleFlush();
+        return n;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return ch.isOpen();
+    }
+
+    /** Closes the socket once all queued output has been sent. */
+    @Override
+    public synchronized void close() {
+        closing = true;
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            loop.execute(this::flush);
+        }
+    }
+
+    /** Sets whether the handler should be run when the channel is readable. Loop thread only. */
+    public void readInterest(boolean on) {
+        readInterest = on;
+        updateInterest();
+    }
+
+    /** Reads available bytes. Loop thread only. */
+    public int read(ByteBuffer dst) throws IOException {
+        return ch.read(dst);
+    }
+
+    private void flush() {
+        boolean close;
+        synchronized (this) {
+            flushScheduled = false;
+            for (ByteBuffer b : queued) {
+                writing.add(b.flip());
+            }
+            queued.clear();
+            close = closing;
+        }
+        if (closed) {
+            return;
+        }
+        long n;
+        try {
+            n = ch.write(writing.toArray(new ByteBuffer[0]));
+        } catch (IOException e) {
+            System.err.println("Unable to write to socket: " + e);
+            closeNow();
+            return;
+        }
+        while (!writing.isEmpty() && !writing.peek().hasRemaining()) {
+            writing.remove();
+        }
+        pending.addAndGet(-n);
+        if (writing.isEmpty() && close) {
+            closeNow();
+            return;
+        }
+        updateInterest();
+        if (n > 0) {
+            runHandler();
+        }
+    }
+
+    private void ready() {
+        if (key.isValid() && key.isWritable()) {
+            flush();
+        }
+        if (key.isValid() && key.isReadable()) {
+            runHandler();
+        }
+    }
+
+    private void runHandler() {
+        Runnable h = handler;
+        if (h != null) {
+            h.run();
+        }
+    }
+
+    private void updateInterest() {
+        if (closed) {
+            return;
+        }
+        int ops =
+                (readInterest ? SelectionKey.OP_READ : 0)
+                        | (writing.isEmpty() ? 0 : SelectionKey.OP_WRITE);
+        try {
+            if (key == null) {
+                key = loop.register(ch, this::ready);
+            }
+            key.interestOps(ops);
+        } catch (ClosedChannelException e) {
+            closeNow();
+        }
+    }
+
+    private void closeNow() {
+        closed = true;
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            ch.close();
+            System.err.println("Closed socket");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        writing.clear();
+        pending.set(0);
+        // Let the reader find out the channel is gone
+        runHandler();
+    }
+}
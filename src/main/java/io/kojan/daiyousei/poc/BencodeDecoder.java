@@ -15,17 +15,18 @@
  */
 package io.kojan.daiyousei.poc;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.SocketChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
 
 public class BencodeDecoder {
-    private final SocketChannel sc;
+    private final ReadableByteChannel ch;
     private final ByteBuffer buf = ByteBuffer.allocate(5);
 
-    public BencodeDecoder(SocketChannel sc) {
-        this.sc = sc;
+    public BencodeDecoder(ReadableByteChannel ch) {
+        this.ch = ch;
         buf.flip();
     }
 
@@ -34,8 +35,11 @@ public class BencodeDecoder {
             buf.flip();
             buf.limit(buf.capacity());
             System.err.println("Input: block, av=" + buf.limit());
-            sc.read(buf);
+            int n = ch.read(buf);
             buf.flip();
+            if (n < 0) {
+                throw new EOFException("Unexpected end of stream");
+            }
             System.err.println("Input: read " + buf.remaining());
         }
     }
@@ -89,6 +93,24 @@ public class BencodeDecoder {
         return bytes;
     }
 
+    public long decodeInteger() throws IOException {
+        consume('i');
+        boolean negative = peek() == '-';
+        if (negative) {
+            recv();
+        }
+        long n = 0;
+        while (peek() != 'e') {
+            int b = recv();
+            if (b < '0' || b > '9') {
+                throw new RuntimeException("Protocol error");
+            }
+            n = 10 * n + b - '0';
+        }
+        consume('e');
+        return negative ? -n : n;
+    }
+
     public void decodeListStart() throws IOException {
         consume('l');
     }
@@ -97,6 +119,11 @@ public class BencodeDecoder {
         consume('e');
     }
 
+    /** Returns bytes read from the channel, but not decoded yet. */
+    public ByteBuffer buffered() {
+        return buf.slice();
+    }
+
     public boolean hasString() throws IOException {
         int b = peek();
         return b >= '0' && b <= '9';
@@ -18,21 +18,23 @@ package io.kojan.daiyousei.poc;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 
 public class BencodeEncoder implements Closeable {
-    private final SocketChannel sc;
+    private final WritableByteChannel ch;
     private ByteBuffer buf = ByteBuffer.allocate(3);
 
-    public BencodeEncoder(SocketChannel sc) {
-        this.sc = sc;
+    public BencodeEncoder(WritableByteChannel ch) {
+        this.ch = ch;
     }
 
     public void flush() throws IOException {
         if (buf.position() > 0) {
             buf.flip();
-            sc.write(buf);
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
             buf.flip();
         }
     }
@@ -50,9 +52,9 @@ public class BencodeEncoder implements Closeable {
         }
     }
 
-    public void encodeInteger(Integer i) throws IOException {
+    public void encodeInteger(long i) throws IOException {
         sendByte('i');
-        sendBytes(i.toString().getBytes(StandardCharsets.UTF_8));
+        sendBytes(Long.toString(i).getBytes(StandardCharsets.UTF_8));
         sendByte('e');
     }
 
@@ -79,7 +81,10 @@ public class BencodeEncoder implements Closeable {
 
     @Override
     public void close() throws IOException {
-        flush();
-        sc.close();
+        try {
+            flush();
+        } finally {
+            ch.close();
+        }
     }
 }
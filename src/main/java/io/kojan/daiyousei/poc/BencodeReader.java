@@ -0,0 +1,122 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.daiyousei.poc;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Decodes bencode held in memory, such as a whole file. Unlike {@link BencodeDecoder}, which reads
+ * a socket a few bytes at a time, this never blocks and parses straight from the array.
+ */
+public class BencodeReader {
+    private final byte[] data;
+    private int pos;
+
+    public BencodeReader(byte[] data) {
+        this.data = data;
+    }
+
+    /** Reads the whole file into memory for decoding. */
+    public static BencodeReader of(Path file) throws IOException {
+        return new BencodeReader(Files.readAllBytes(file));
+    }
+
+    private int peek() throws IOException {
+        if (pos == data.length) {
+            throw new EOFException("Unexpected end of stream");
+        }
+        return data[pos];
+    }
+
+    private int recv() throws IOException {
+        int b = peek();
+        pos++;
+        return b;
+    }
+
+    private void consume(int b) throws IOException {
+        if (recv() != b) {
+            throw new RuntimeException("Protocol error");
+        }
+    }
+
+    public void consume(String str) throws IOException {
+        String s = Integer.valueOf(str.length()).toString() + ":" + str;
+        for (int b : s.getBytes(StandardCharsets.UTF_8)) {
+            consume(b);
+        }
+    }
+
+    public String decodeUTF8() throws IOException {
+        return new String(decodeString(), StandardCharsets.UTF_8);
+    }
+
+    public byte[] decodeString() throws IOException {
+        if (!hasString()) {
+            throw new RuntimeException("Protocol error");
+        }
+        long n = 0;
+        while (hasString()) {
+            n = 10 * n + recv() - '0';
+            if (n > data.length) {
+                throw new EOFException("Unexpected end of stream");
+            }
+        }
+        consume(':');
+        if (n > data.length - pos) {
+            throw new EOFException("Unexpected end of stream");
+        }
+        byte[] bytes = Arrays.copyOfRange(data, pos, pos + (int) n);
+        pos += (int) n;
+        return bytes;
+    }
+
+    public long decodeInteger() throws IOException {
+        consume('i');
+        boolean negative = peek() == '-';
+        if (negative) {
+            recv();
+        }
+        long n = 0;
+        while (peek() != 'e') {
+            int b = recv();
+            if (b < '0' || b > '9') {
+                throw new RuntimeException("Protocol error");
+            }
+            n = 10 * n + b - '0';
+        }
+        consume('e');
+        return negative ? -n : n;
+    }
+
+    public void decodeListStart() throws IOException {
+        consume('l');
+    }
+
+    public void decodeListEnd() throws IOException {
+        consume('e');
+    }
+
+    public boolean hasString() throws IOException {
+        int b = peek();
+        return b >= '0' && b <= '9';
+    }
+}
@@ -0,0 +1,78 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.daiyousei.poc;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Encodes bencode to a file through a large buffer. {@link BencodeEncoder} is meant for sockets,
+ * where it flushes every few bytes; files only need to be written once the buffer fills up.
+ */
+public class BencodeWriter implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream os;
+
+    public BencodeWriter(OutputStream os) {
+        this.os = new BufferedOutputStream(os, BUFFER_SIZE);
+    }
+
+    /** Opens the file for writing, truncating it. */
+    public static BencodeWriter of(Path file) throws IOException {
+        return new BencodeWriter(Files.newOutputStream(file));
+    }
+
+    private void sendAscii(String s) throws IOException {
+        os.write(s.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public void encodeInteger(long i) throws IOException {
+        sendAscii("i" + i + "e");
+    }
+
+    public void encodeString(byte[] data, int off, int len) throws IOException {
+        sendAscii(len + ":");
+        os.write(data, off, len);
+    }
+
+    public void encodeUTF8(String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        encodeString(bytes, 0, bytes.length);
+    }
+
+    public void encodeListStart() throws IOException {
+        os.write('l');
+    }
+
+    public void encodeListEnd() throws IOException {
+        os.write('e');
+    }
+
+    public void flush() throws IOException {
+        os.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        os.close();
+    }
+}
@@ -20,10 +20,32 @@ import java.io.InputStream;
 import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
-public class CatApp implements Application {
+public class CatApp implements Application, Memoizable {
+    private static Path resolve(Path cwd, String arg) {
+        Path p = Path.of(arg);
+        if (!p.isAbsolute()) {
+            p = cwd.resolve(p);
+        }
+        return p;
+    }
+
+    @Override
+    public List<Path> inputs(List<String> args, Map<String, String> env, Path cwd) {
+        if (args.isEmpty()) {
+            // Stdin is usually interactive
+            return null;
+        }
+        List<Path> inputs = new ArrayList<>();
+        for (String arg : args) {
+            inputs.add(resolve(cwd, arg));
+        }
+        return inputs;
+    }
+
     @Override
     public int run(
             List<String> args,
@@ -41,10 +63,7 @@ public class CatApp implements Application {
             }
         } else {
             for (String arg : args) {
-                Path p = Path.of(arg);
-                if (!p.isAbsolute()) {
-                    p = cwd.resolve(p);
-                }
+                Path p = resolve(cwd, arg);
                 try (InputStream pin = Files.newInputStream(p)) {
                     pin.transferTo(out);
                 } catch (IOException e) {
@@ -21,23 +21,39 @@ import java.io.InputStream;
 public class DaiyouseiInputStream extends InputStream {
     private final BencodeDecoder bd;
     private final String label;
+    private final FrameListener listener;
     private byte[] chunk = new byte[0];
     private int pos;
 
     public DaiyouseiInputStream(BencodeDecoder bd, String label) {
+        this(bd, label, null);
+    }
+
+    public DaiyouseiInputStream(BencodeDecoder bd, String label, FrameListener listener) {
         this.bd = bd;
         this.label = label;
+        this.listener = listener;
+    }
+
+    private boolean nextChunk() throws IOException {
+        if (!bd.hasString()) {
+            return false;
+        }
+        bd.consume(label);
+        chunk = bd.decodeString();
+        pos = 0;
+        if (listener != null) {
+            listener.frame(label, chunk, 0, chunk.length);
+        }
+        return true;
     }
 
     @Override
     public int read() throws IOException {
         while (pos == chunk.length) {
-            if (!bd.hasString()) {
+            if (!nextChunk()) {
                 return -1;
             }
-            bd.consume(label);
-            chunk = bd.decodeString();
-            pos = 0;
         }
         System.err.println("IS read(1) return " + chunk[pos]);
         return chunk[pos++];
@@ -46,12 +62,9 @@ public class DaiyouseiInputStream extends InputStream {
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
         while (pos == chunk.length) {
-            if (!bd.hasString()) {
+            if (!nextChunk()) {
                 return -1;
             }
-            bd.consume(label);
-            chunk = bd.decodeString();
-            pos = 0;
         }
         int n = Math.min(chunk.length - pos, len);
         System.arraycopy(chunk, pos, b, off, n);
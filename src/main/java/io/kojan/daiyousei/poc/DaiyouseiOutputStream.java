@@ -21,12 +21,18 @@ import java.io.OutputStream;
 public class DaiyouseiOutputStream extends OutputStream {
     private final BencodeEncoder be;
     private final String label;
+    private final FrameListener listener;
     private byte[] buf = new byte[500];
     private int pos;
 
     public DaiyouseiOutputStream(BencodeEncoder be, String label) {
+        this(be, label, null);
+    }
+
+    public DaiyouseiOutputStream(BencodeEncoder be, String label, FrameListener listener) {
         this.be = be;
         this.label = label;
+        this.listener = listener;
     }
 
     @Override
@@ -39,12 +45,18 @@ public class DaiyouseiOutputStream extends OutputStream {
 
     @Override
     public void flush() throws IOException {
-        if (pos > 0) {
-            be.encodeUTF8(label);
-            be.encodeString(buf, 0, pos);
-            pos = 0;
+        // Stdout and stderr share the encoder and async apps may write them from different threads
+        synchronized (be) {
+            if (pos > 0) {
+                be.encodeUTF8(label);
+                be.encodeString(buf, 0, pos);
+                if (listener != null) {
+                    listener.frame(label, buf, 0, pos);
+                }
+                pos = 0;
+            }
+            be.flush();
         }
-        be.flush();
     }
 
     @Override
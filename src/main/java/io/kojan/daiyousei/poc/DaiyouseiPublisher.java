@@ -0,0 +1,234 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.daiyousei.poc;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes frames of given label, read from a non-blocking channel, to a single subscriber.
+ *
+ * <p>No thread is dedicated to the channel. Frames are decoded on the {@link SelectorLoop} driving
+ * the channel, only while the subscriber has outstanding demand, and the channel is polled for
+ * readability only when there is demand but no complete frame buffered yet. The list end
+ * terminating the frames completes the flow.
+ *
+ * <p>While more than {@link #MAX_PENDING_OUTPUT} bytes of output wait to be sent to the client,
+ * frames are not published, so that a client which does not read its output cannot make the
+ * session queue unbounded output in response to its input.
+ */
+public class DaiyouseiPublisher implements Flow.Publisher<byte[]> {
+    /** Amount of unsent output above which no more input is published. */
+    public static final long MAX_PENDING_OUTPUT = 1 << 20;
+
+    private static final byte[] END = new byte[0];
+
+    private final AsyncChannel ch;
+    private final byte[] header;
+    private final String label;
+    private final FrameListener listener;
+    private final SelectorLoop loop;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private ByteBuffer buf;
+
+    /**
+     * @param ch channel to read from, also carrying the output of the session
+     * @param buffered bytes already read from the channel, in read mode
+     * @param label label of published frames
+     * @param listener listener notified about published frames, or {@code null}
+     * @param loop loop driving the channel, where frames are published
+     */
+    public DaiyouseiPublisher(
+            AsyncChannel ch,
+            ByteBuffer buffered,
+            String label,
+            FrameListener listener,
+            SelectorLoop loop) {
+        this.ch = ch;
+        this.header = (label.length() + ":" + label).getBytes(StandardCharsets.UTF_8);
+        this.label = label;
+        this.listener = listener;
+        this.loop = loop;
+        this.buf = ByteBuffer.allocate(Math.max(4096, buffered.remaining()));
+        buf.put(buffered);
+        buf.flip();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super byte[]> subscriber) {
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(
+                    new Flow.Subscription() {
+                        @Override
+                        public void request(long n) {}
+
+                        @Override
+                        public void cancel() {}
+                    });
+            subscriber.onError(new IllegalStateException("Already subscribed"));
+            return;
+        }
+        subscriber.onSubscribe(new Subscription(subscriber));
+    }
+
+    private class Subscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super byte[]> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        // Confined to the loop thread
+        private boolean done;
+
+        Subscription(Flow.Subscriber<? super byte[]> subscriber) {
+            this.subscriber = subscriber;
+            ch.setHandler(this::drain);
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                loop.execute(
+                        () -> fail(new IllegalArgumentException("Non-positive request: " + n)));
+                return;
+            }
+            demand.getAndAccumulate(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+            loop.execute(this::drain);
+        }
+
+        @Override
+        public void cancel() {
+            loop.execute(
+                    () -> {
+                        done = true;
+                        deregister();
+                    });
+        }
+
+        private void drain() {
+            try {
+                while (!done && demand.get() > 0) {
+                    if (ch.pendingBytes() > MAX_PENDING_OUTPUT) {
+                        // Resumed by the handler once output has been sent
+                        ch.readInterest(false);
+                        return;
+                    }
+                    byte[] chunk = parse();
+                    if (chunk == END) {
+                        done = true;
+                        deregister();
+                        subscriber.onComplete();
+                    } else if (chunk != null) {
+                        demand.decrementAndGet();
+                        if (listener != null) {
+                            listener.frame(label, chunk, 0, chunk.length);
+                        }
+                        subscriber.onNext(chunk);
+                    } else if (!fill()) {
+                        ch.readInterest(true);
+                        return;
+                    }
+                }
+                if (!done) {
+                    ch.readInterest(false);
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void fail(Throwable t) {
+            if (!done) {
+                done = true;
+                deregister();
+                subscriber.onError(t);
+            }
+        }
+
+        private void deregister() {
+            ch.readInterest(false);
+        }
+    }
+
+    /** Reads available bytes, returns whether any were read. */
+    private boolean fill() throws IOException {
+        buf.compact();
+        if (!buf.hasRemaining()) {
+            buf.flip();
+            buf = ByteBuffer.allocate(2 * buf.capacity()).put(buf);
+        }
+        int n;
+        try {
+            n = ch.read(buf);
+        } finally {
+            buf.flip();
+        }
+        if (n < 0) {
+            throw new EOFException("Unexpected end of stream");
+        }
+        return n > 0;
+    }
+
+    /** Decodes next buffered frame, returns {@code null} if it was not fully received yet. */
+    private byte[] parse() {
+        int p = buf.position();
+        if (p == buf.limit()) {
+            return null;
+        }
+        if (buf.get(p) == 'e') {
+            buf.position(p + 1);
+            return END;
+        }
+        int labelEnd = skipString(p);
+        if (labelEnd < 0) {
+            return null;
+        }
+        byte[] actual = new byte[labelEnd - p];
+        buf.get(p, actual);
+        if (!Arrays.equals(actual, header)) {
+            throw new RuntimeException("Protocol error");
+        }
+        int end = skipString(labelEnd);
+        if (end < 0) {
+            return null;
+        }
+        int start = labelEnd;
+        while (buf.get(start++) != ':') {}
+        byte[] data = new byte[end - start];
+        buf.get(start, data);
+        buf.position(end);
+        return data;
+    }
+
+    /** Returns index just past the string at given index, or -1 if it is incomplete. */
+    private int skipString(int p) {
+        long len = 0;
+        for (int i = p; i < buf.limit(); i++) {
+            int b = buf.get(i);
+            if (b == ':' && i > p) {
+                return i + 1 + len <= buf.limit() ? (int) (i + 1 + len) : -1;
+            }
+            if (b < '0' || b > '9' || len > Integer.MAX_VALUE) {
+                throw new RuntimeException("Protocol error");
+            }
+            len = 10 * len + b - '0';
+        }
+        return -1;
+    }
+}
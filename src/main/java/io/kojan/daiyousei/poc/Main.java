@@ -17,6 +17,7 @@ package io.kojan.daiyousei.poc;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 
 public class Main {
@@ -27,6 +28,33 @@ public class Main {
             System.err.println("DAIYOUSEI_UNIX_SOCKET was not set, defaulting to " + sockPath);
         }
         CountDownLatch cdl = new CountDownLatch(1);
-        Server.runServer(Path.of(sockPath), cdl);
+        String warmupDir = System.getenv("DAIYOUSEI_WARMUP_DIR");
+        if (warmupDir != null) {
+            Path socketPath = Path.of(sockPath);
+            Thread warmup = new Thread(() -> warmUp(socketPath, Path.of(warmupDir), cdl));
+            warmup.setDaemon(true);
+            warmup.start();
+        }
+        Server.runServer(Path.of(sockPath), cdl, Server.Options.fromEnv());
+    }
+
+    private static void warmUp(Path socketPath, Path warmupDir, CountDownLatch cdl) {
+        try {
+            String iterations = System.getenv("DAIYOUSEI_WARMUP_ITERATIONS");
+            List<Recording> recordings = Recording.readAll(List.of(warmupDir));
+            cdl.await();
+            System.err.println("Warming up with " + recordings.size() + " recorded sessions");
+            Replay.Report report =
+                    Replay.run(
+                            socketPath,
+                            recordings,
+                            true,
+                            1,
+                            iterations != null ? Integer.parseInt(iterations) : 10,
+                            true);
+            System.err.println("Warm-up finished: " + report);
+        } catch (Exception e) {
+            System.err.println("Warm-up failed: " + e);
+        }
     }
 }
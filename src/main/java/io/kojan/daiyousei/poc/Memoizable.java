@@ -0,0 +1,43 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.daiyousei.poc;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Application whose output and exit code are fully determined by its invocation and input files,
+ * so that results can be reused by {@link ResultCache}.
+ */
+public interface Memoizable {
+    /**
+     * Returns files read by given invocation, or {@code null} if the invocation must not be
+     * memoized.
+     */
+    List<Path> inputs(List<String> args, Map<String, String> env, Path cwd);
+
+    /** Returns names of environment variables that affect the result. */
+    default Set<String> envKeys() {
+        return Set.of();
+    }
+
+    /** Returns whether given invocation reads stdin, which must then be buffered up front. */
+    default boolean readsStdin(List<String> args) {
+        return false;
+    }
+}
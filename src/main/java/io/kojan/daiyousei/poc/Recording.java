@@ -0,0 +1,115 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.daiyousei.poc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/** A session previously captured by {@link SessionRecorder}. */
+public record Recording(
+        String appName,
+        List<String> args,
+        Path cwd,
+        Map<String, String> env,
+        List<Recording.Input> stdin,
+        byte[] stdout,
+        byte[] stderr,
+        int exitCode) {
+
+    /**
+     * A single stdin frame together with the offset in microseconds from the handshake at which the
+     * app consumed it.
+     */
+    public record Input(long time, byte[] data) {}
+
+    public static Recording read(Path file) throws IOException {
+        BencodeReader br = BencodeReader.of(file);
+        br.decodeListStart();
+
+        br.consume("argv");
+        br.decodeListStart();
+        String appName = br.decodeUTF8();
+        List<String> args = new ArrayList<>();
+        while (br.hasString()) {
+            args.add(br.decodeUTF8());
+        }
+        br.decodeListEnd();
+
+        br.consume("cwd");
+        Path cwd = Path.of(br.decodeUTF8());
+
+        br.consume("env");
+        br.decodeListStart();
+        Map<String, String> env = new LinkedHashMap<>();
+        while (br.hasString()) {
+            env.put(br.decodeUTF8(), br.decodeUTF8());
+        }
+        br.decodeListEnd();
+
+        List<Input> stdin = new ArrayList<>();
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        Integer exitCode = null;
+        while (br.hasString()) {
+            switch (br.decodeUTF8()) {
+                case "stdin" -> stdin.add(new Input(br.decodeInteger(), br.decodeString()));
+                case "stdout" -> stdout.writeBytes(br.decodeString());
+                case "stderr" -> stderr.writeBytes(br.decodeString());
+                case "exitcode" -> exitCode = (int) br.decodeInteger();
+                default -> throw new RuntimeException("Protocol error");
+            }
+        }
+        br.decodeListEnd();
+        if (exitCode == null) {
+            throw new RuntimeException("Protocol error");
+        }
+        return new Recording(
+                appName,
+                args,
+                cwd,
+                env,
+                stdin,
+                stdout.toByteArray(),
+                stderr.toByteArray(),
+                exitCode);
+    }
+
+    /** Reads recordings from given files, or from all recording files within given directories. */
+    public static List<Recording> readAll(List<Path> paths) throws IOException {
+        List<Recording> recordings = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                List<Path> files;
+                try (Stream<Path> s = Files.list(path)) {
+                    files = s.filter(p -> p.toString().endsWith(".bencode")).sorted().toList();
+                }
+                for (Path file : files) {
+                    recordings.add(read(file));
+                }
+            } else {
+                recordings.add(read(path));
+            }
+        }
+        return recordings;
+    }
+}
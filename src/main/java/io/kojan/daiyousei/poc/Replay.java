@@ -0,0 +1,252 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.daiyousei.poc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a server with sessions captured by {@link SessionRecorder}, either at original stdin
+ * timing or as fast as possible, and reports latency percentiles and output mismatches.
+ */
+public class Replay {
+    /**
+     * Environment variable marking sessions replayed for warm-up. The server removes it before
+     * running the app and does not record such sessions.
+     */
+    public static final String WARMUP_ENV = "DAIYOUSEI_WARMUP";
+
+    /** Replay results, with sorted latencies in nanoseconds of sessions that did not fail. */
+    public record Report(int sessions, int failures, int mismatches, long[] latencies) {
+        public long percentile(double p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int i = (int) Math.ceil(p / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(i, latencies.length - 1))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "sessions=%d failures=%d mismatches=%d p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms",
+                    sessions,
+                    failures,
+                    mismatches,
+                    percentile(50) / 1e6,
+                    percentile(90) / 1e6,
+                    percentile(99) / 1e6,
+                    percentile(100) / 1e6);
+        }
+    }
+
+    private record Result(long latency, boolean failed, boolean mismatch) {}
+
+    public static Report run(
+            Path socketPath,
+            List<Recording> recordings,
+            boolean fast,
+            int concurrency,
+            int iterations)
+            throws InterruptedException {
+        return run(socketPath, recordings, fast, concurrency, iterations, false);
+    }
+
+    /** Replays sessions, marking them as warm-up sessions if {@code warmup} is set. */
+    public static Report run(
+            Path socketPath,
+            List<Recording> recordings,
+            boolean fast,
+            int concurrency,
+            int iterations,
+            boolean warmup)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        List<Future<Result>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < iterations; i++) {
+                for (Recording recording : recordings) {
+                    futures.add(executor.submit(() -> replay(socketPath, recording, fast, warmup)));
+                }
+            }
+            int failures = 0;
+            int mismatches = 0;
+            long[] latencies = new long[futures.size()];
+            int n = 0;
+            for (Future<Result> future : futures) {
+                Result result;
+                try {
+                    result = future.get();
+                } catch (Exception e) {
+                    System.err.println("Replay failed: " + e);
+                    failures++;
+                    continue;
+                }
+                if (result.failed()) {
+                    failures++;
+                    continue;
+                }
+                if (result.mismatch()) {
+                    mismatches++;
+                }
+                latencies[n++] = result.latency();
+            }
+            latencies = Arrays.copyOf(latencies, n);
+            Arrays.sort(latencies);
+            return new Report(futures.size(), failures, mismatches, latencies);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Result replay(
+            Path socketPath, Recording recording, boolean fast, boolean warmup)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        try (SocketChannel ch = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            ch.connect(UnixDomainSocketAddress.of(socketPath));
+            BencodeDecoder bd = new BencodeDecoder(ch);
+            BencodeEncoder be = new BencodeEncoder(ch);
+            bd.decodeListStart();
+
+            be.encodeListStart();
+            be.encodeUTF8("argv");
+            be.encodeListStart();
+            be.encodeUTF8(recording.appName());
+            for (String arg : recording.args()) {
+                be.encodeUTF8(arg);
+            }
+            be.encodeListEnd();
+            be.encodeUTF8("cwd");
+            be.encodeUTF8(recording.cwd().toString());
+            be.encodeUTF8("env");
+            be.encodeListStart();
+            for (Map.Entry<String, String> entry : recording.env().entrySet()) {
+                be.encodeUTF8(entry.getKey());
+                be.encodeUTF8(entry.getValue());
+            }
+            if (warmup) {
+                be.encodeUTF8(WARMUP_ENV);
+                be.encodeUTF8("1");
+            }
+            be.encodeListEnd();
+            be.flush();
+
+            long handshake = System.nanoTime();
+            Thread sender = new Thread(() -> sendStdin(be, recording, fast, handshake));
+            sender.setDaemon(true);
+            sender.start();
+
+            ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+            ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+            Integer exitCode = null;
+            try {
+                while (bd.hasString()) {
+                    switch (bd.decodeUTF8()) {
+                        case "stdout" -> stdout.writeBytes(bd.decodeString());
+                        case "stderr" -> stderr.writeBytes(bd.decodeString());
+                        case "exitcode" -> exitCode = (int) bd.decodeInteger();
+                        default -> throw new RuntimeException("Protocol error");
+                    }
+                }
+                bd.decodeListEnd();
+            } catch (IOException e) {
+                System.err.println("Replay of " + recording.appName() + " failed: " + e);
+                return new Result(System.nanoTime() - start, true, false);
+            } finally {
+                sender.interrupt();
+                sender.join();
+            }
+            long latency = System.nanoTime() - start;
+            String mismatch = null;
+            if (exitCode == null || exitCode != recording.exitCode()) {
+                mismatch = "exit code " + exitCode + ", expected " + recording.exitCode();
+            } else if (!Arrays.equals(stdout.toByteArray(), recording.stdout())) {
+                mismatch = "stdout differs";
+            } else if (!Arrays.equals(stderr.toByteArray(), recording.stderr())) {
+                mismatch = "stderr differs";
+            }
+            if (mismatch != null) {
+                System.err.println("Replay of " + recording.appName() + " mismatched: " + mismatch);
+            }
+            return new Result(latency, false, mismatch != null);
+        }
+    }
+
+    private static void sendStdin(
+            BencodeEncoder be, Recording recording, boolean fast, long handshake) {
+        try {
+            for (Recording.Input input : recording.stdin()) {
+                if (!fast) {
+                    long delay = handshake + input.time() * 1000 - System.nanoTime();
+                    if (delay > 0) {
+                        TimeUnit.NANOSECONDS.sleep(delay);
+                    }
+                }
+                be.encodeUTF8("stdin");
+                be.encodeString(input.data(), 0, input.data().length);
+            }
+            be.encodeListEnd();
+            be.flush();
+        } catch (IOException | InterruptedException e) {
+            // Server has already finished the session
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean fast = false;
+        int concurrency = 1;
+        int iterations = 1;
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("-"); i++) {
+            switch (args[i]) {
+                case "-f", "--fast" -> fast = true;
+                case "-c", "--concurrency" -> concurrency = Integer.parseInt(args[++i]);
+                case "-n", "--iterations" -> iterations = Integer.parseInt(args[++i]);
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+        if (args.length - i < 2) {
+            System.err.println(
+                    "Usage: Replay [--fast] [--concurrency N] [--iterations N] SOCKET RECORDING...");
+            System.exit(2);
+        }
+        Path socketPath = Path.of(args[i++]);
+        List<Path> paths = new ArrayList<>();
+        for (; i < args.length; i++) {
+            paths.add(Path.of(args[i]));
+        }
+        List<Recording> recordings = Recording.readAll(paths);
+        Report report = Replay.run(socketPath, recordings, fast, concurrency, iterations);
+        System.out.println(report);
+        System.exit(report.failures() + report.mismatches() > 0 ? 1 : 0);
+    }
+}
@@ -0,0 +1,437 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.daiyousei.poc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Cache of results of {@link Memoizable} apps.
+ *
+ * <p>Results are keyed by app name, arguments, declared environment variables, working directory,
+ * stdin digest and fingerprints (size, modification time and content hash) of declared input files.
+ * Stdout and stderr writes are stored in order together with the exit code, and replayed on a hit
+ * without running the app. Results are kept in memory and optionally on disk, both bounded in size
+ * and evicted least recently used first.
+ */
+public class ResultCache {
+    private static final String SUFFIX = ".bencode";
+    private static final int MAX_FINGERPRINTS = 10000;
+
+    private final long maxMemoryBytes;
+    private final Path dir;
+    private final long maxDiskBytes;
+    private final long maxEntryBytes;
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private final AtomicLong diskBytes = new AtomicLong();
+    private final LinkedHashMap<Path, Fingerprint> fingerprints =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    public record Frame(String label, byte[] data) {}
+
+    public record Entry(List<Frame> frames, int exitCode) {
+        long size() {
+            long size = 64;
+            for (Frame frame : frames) {
+                size += 32 + frame.data().length;
+            }
+            return size;
+        }
+    }
+
+    private record Fingerprint(long size, FileTime mtime, String hash) {}
+
+    /**
+     * @param maxMemoryBytes maximal size of results kept in memory
+     * @param dir directory where results are persisted, or {@code null} to keep them in memory only
+     * @param maxDiskBytes maximal size of results persisted on disk
+     */
+    public ResultCache(long maxMemoryBytes, Path dir, long maxDiskBytes) throws IOException {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.dir = dir;
+        this.maxDiskBytes = maxDiskBytes;
+        this.maxEntryBytes = dir != null ? Math.max(maxMemoryBytes, maxDiskBytes) : maxMemoryBytes;
+        if (dir != null) {
+            Files.createDirectories(dir);
+            try (Stream<Path> s = Files.list(dir)) {
+                s.filter(p -> p.toString().endsWith(SUFFIX))
+                        .forEach(p -> diskBytes.addAndGet(p.toFile().length()));
+            }
+            evictDisk();
+        }
+    }
+
+    /** Runs given app, or replays its result if it was already run with the same inputs. */
+    public int run(
+            String appName,
+            Memoizable memo,
+            Application app,
+            List<String> args,
+            Map<String, String> env,
+            Path cwd,
+            InputStream in,
+            PrintStream out,
+            PrintStream err)
+            throws Throwable {
+        List<Path> inputs = memo.inputs(args, env, cwd);
+        if (inputs == null) {
+            return app.run(args, env, cwd, in, out, err);
+        }
+        byte[] stdin = null;
+        if (memo.readsStdin(args)) {
+            stdin = in.readAllBytes();
+            in = new ByteArrayInputStream(stdin);
+        }
+        String key = key(appName, memo, args, env, cwd, stdin, inputs);
+        if (key == null) {
+            return app.run(args, env, cwd, in, out, err);
+        }
+
+        Entry entry = get(key);
+        if (entry != null) {
+            System.err.println("Cache hit for " + appName + ": " + key);
+            for (Frame frame : entry.frames()) {
+                (frame.label().equals("stdout") ? out : err).write(frame.data());
+            }
+            out.flush();
+            err.flush();
+            return entry.exitCode();
+        }
+
+        System.err.println("Cache miss for " + appName + ": " + key);
+        Capture capture = new Capture();
+        PrintStream appOut = new PrintStream(capture.stream("stdout", out), true);
+        PrintStream appErr = new PrintStream(capture.stream("stderr", err), true);
+        int ret = app.run(args, env, cwd, in, appOut, appErr);
+        appOut.flush();
+        appErr.flush();
+        List<Frame> frames = capture.frames();
+        // Inputs may have changed while the app was running, in which case the output need not
+        // match either version of them
+        if (frames != null && key.equals(key(appName, memo, args, env, cwd, stdin, inputs))) {
+            put(key, new Entry(frames, ret));
+        }
+        return ret;
+    }
+
+    /** Collects stdout and stderr writes in order, merging adjacent writes to the same stream. */
+    private class Capture {
+        private final List<String> labels = new ArrayList<>();
+        private final List<ByteArrayOutputStream> data = new ArrayList<>();
+        private long size;
+
+        OutputStream stream(String label, OutputStream delegate) {
+            return new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[] {(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    delegate.write(b, off, len);
+                    add(label, b, off, len);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    delegate.flush();
+                }
+            };
+        }
+
+        private synchronized void add(String label, byte[] b, int off, int len) {
+            size += len;
+            if (size > maxEntryBytes) {
+                return;
+            }
+            int last = labels.size() - 1;
+            if (last < 0 || !labels.get(last).equals(label)) {
+                labels.add(label);
+                data.add(new ByteArrayOutputStream());
+                last++;
+            }
+            data.get(last).write(b, off, len);
+        }
+
+        /** Returns captured frames, or {@code null} if they are too large to be cached. */
+        synchronized List<Frame> frames() {
+            if (size > maxEntryBytes) {
+                return null;
+            }
+            List<Frame> frames = new ArrayList<>();
+            for (int i = 0; i < labels.size(); i++) {
+                frames.add(new Frame(labels.get(i), data.get(i).toByteArray()));
+            }
+            return frames;
+        }
+    }
+
+    private String key(
+            String appName,
+            Memoizable memo,
+            List<String> args,
+            Map<String, String> env,
+            Path cwd,
+            byte[] stdin,
+            List<Path> inputs)
+            throws IOException {
+        MessageDigest md = sha256();
+        update(md, appName);
+        update(md, Integer.toString(args.size()));
+        for (String arg : args) {
+            update(md, arg);
+        }
+        for (String name : new TreeSet<>(memo.envKeys())) {
+            update(md, name);
+            String value = env.get(name);
+            update(md, value != null ? "=" + value : "");
+        }
+        update(md, cwd.toString());
+        update(md, stdin != null ? HexFormat.of().formatHex(sha256().digest(stdin)) : "");
+        for (Path input : inputs) {
+            String fingerprint = fingerprint(input);
+            if (fingerprint == null) {
+                return null;
+            }
+            update(md, input.toString());
+            update(md, fingerprint);
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void update(MessageDigest md, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        md.update((bytes.length + ":").getBytes(StandardCharsets.UTF_8));
+        md.update(bytes);
+    }
+
+    private String fingerprint(Path path) throws IOException {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            forget(path);
+            return "missing";
+        }
+        if (!attrs.isRegularFile()) {
+            // Devices, pipes and the like are not reproducible
+            forget(path);
+            return null;
+        }
+        Fingerprint fp;
+        synchronized (fingerprints) {
+            fp = fingerprints.get(path);
+        }
+        FileTime mtime = attrs.lastModifiedTime();
+        if (fp == null || fp.size() != attrs.size() || !fp.mtime().equals(mtime)) {
+            forget(path);
+            MessageDigest md = sha256();
+            try (InputStream is = Files.newInputStream(path)) {
+                byte[] buf = new byte[65536];
+                int n;
+                while ((n = is.read(buf)) >= 0) {
+                    md.update(buf, 0, n);
+                }
+            }
+            fp = new Fingerprint(attrs.size(), mtime, HexFormat.of().formatHex(md.digest()));
+            // File modified within timestamp granularity could change again unnoticed
+            if (System.currentTimeMillis() - mtime.toMillis() > 2000) {
+                synchronized (fingerprints) {
+                    fingerprints.put(path, fp);
+                    Iterator<Fingerprint> it = fingerprints.values().iterator();
+                    while (fingerprints.size() > MAX_FINGERPRINTS) {
+                        it.next();
+                        it.remove();
+                    }
+                }
+            }
+        }
+        return fp.size() + ":" + fp.mtime().toMillis() + ":" + fp.hash();
+    }
+
+    private void forget(Path path) {
+        synchronized (fingerprints) {
+            fingerprints.remove(path);
+        }
+    }
+
+    private Entry get(String key) throws IOException {
+        synchronized (memory) {
+            Entry entry = memory.get(key);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        if (dir == null) {
+            return null;
+        }
+        Path file = dir.resolve(key + SUFFIX);
+        Entry entry;
+        try {
+            entry = read(file);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Discarding unreadable cache entry " + file + ": " + e);
+            delete(file);
+            return null;
+        }
+        putMemory(key, entry);
+        return entry;
+    }
+
+    private void put(String key, Entry entry) {
+        putMemory(key, entry);
+        if (dir != null) {
+            try {
+                write(key, entry);
+                evictDisk();
+            } catch (IOException e) {
+                System.err.println("Unable to store cache entry: " + e);
+            }
+        }
+    }
+
+    private void putMemory(String key, Entry entry) {
+        synchronized (memory) {
+            Entry prev = memory.put(key, entry);
+            if (prev != null) {
+                memoryBytes -= prev.size();
+            }
+            memoryBytes += entry.size();
+            Iterator<Entry> it = memory.values().iterator();
+            while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+                memoryBytes -= it.next().size();
+                it.remove();
+            }
+        }
+    }
+
+    private static Entry read(Path file) throws IOException {
+        BencodeReader br = BencodeReader.of(file);
+        br.decodeListStart();
+        List<Frame> frames = new ArrayList<>();
+        while (true) {
+            String label = br.decodeUTF8();
+            switch (label) {
+                case "stdout", "stderr" -> frames.add(new Frame(label, br.decodeString()));
+                case "exitcode" -> {
+                    int exitCode = (int) br.decodeInteger();
+                    br.decodeListEnd();
+                    return new Entry(frames, exitCode);
+                }
+                default -> throw new RuntimeException("Protocol error");
+            }
+        }
+    }
+
+    private void write(String key, Entry entry) throws IOException {
+        Path tmp = Files.createTempFile(dir, "entry-", ".tmp");
+        try {
+            try (BencodeWriter bw = BencodeWriter.of(tmp)) {
+                bw.encodeListStart();
+                for (Frame frame : entry.frames()) {
+                    bw.encodeUTF8(frame.label());
+                    bw.encodeString(frame.data(), 0, frame.data().length);
+                }
+                bw.encodeUTF8("exitcode");
+                bw.encodeInteger(entry.exitCode());
+                bw.encodeListEnd();
+            }
+            long size = Files.size(tmp);
+            Path file = dir.resolve(key + SUFFIX);
+            long prev = file.toFile().length();
+            Files.move(
+                    tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            diskBytes.addAndGet(size - prev);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void evictDisk() throws IOException {
+        if (diskBytes.get() <= maxDiskBytes) {
+            return;
+        }
+        synchronized (diskBytes) {
+            List<Path> files;
+            try (Stream<Path> s = Files.list(dir)) {
+                files = s.filter(p -> p.toString().endsWith(SUFFIX)).toList();
+            }
+            Map<Path, FileTime> mtimes = new LinkedHashMap<>();
+            for (Path file : files) {
+                try {
+                    mtimes.put(file, Files.getLastModifiedTime(file));
+                } catch (NoSuchFileException e) {
+                    // Already evicted
+                }
+            }
+            List<Path> oldest = new ArrayList<>(mtimes.keySet());
+            oldest.sort(Comparator.comparing(mtimes::get));
+            for (Path file : oldest) {
+                if (diskBytes.get() <= maxDiskBytes) {
+                    break;
+                }
+                delete(file);
+            }
+        }
+    }
+
+    private void delete(Path file) {
+        try {
+            long size = file.toFile().length();
+            if (Files.deleteIfExists(file)) {
+                diskBytes.addAndGet(-size);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.daiyousei.poc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+public class RevApp implements AsyncApplication {
+    @Override
+    public CompletionStage<Integer> run(
+            List<String> args,
+            Map<String, String> env,
+            Path cwd,
+            Flow.Publisher<byte[]> in,
+            PrintStream out,
+            PrintStream err) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        in.subscribe(
+                new Flow.Subscriber<>() {
+                    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+                    private Flow.Subscription subscription;
+
+                    private String reversed() {
+                        String s = line.toString(StandardCharsets.UTF_8);
+                        line.reset();
+                        return new StringBuilder(s).reverse().toString();
+                    }
+
+                    @Override
+                    public void onSubscribe(Flow.Subscription subscription) {
+                        this.subscription = subscription;
+                        subscription.request(1);
+                    }
+
+                    @Override
+                    public void onNext(byte[] chunk) {
+                        int start = 0;
+                        for (int i = 0; i < chunk.length; i++) {
+                            if (chunk[i] == '\n') {
+                                line.write(chunk, start, i - start);
+                                out.println(reversed());
+                                start = i + 1;
+                            }
+                        }
+                        line.write(chunk, start, chunk.length - start);
+                        subscription.request(1);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        err.println("rev: Error reading stdin: " + t);
+                        result.complete(1);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        if (line.size() > 0) {
+                            out.print(reversed());
+                            out.flush();
+                        }
+                        result.complete(0);
+                    }
+                });
+        return result;
+    }
+}
@@ -0,0 +1,81 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.daiyousei.poc;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/** Single thread that waits for many non-blocking channels to become ready. */
+public class SelectorLoop {
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    public SelectorLoop(String name) throws IOException {
+        selector = Selector.open();
+        Thread thread = new Thread(this::loop, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Runs given task on the loop thread. */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Registers given channel with no interest set. Must be called on the loop thread. The handler
+     * is run on the loop thread whenever the channel is ready for any operation in the interest set.
+     */
+    public SelectionKey register(SelectableChannel ch, Runnable onReady)
+            throws ClosedChannelException {
+        return ch.register(selector, 0, onReady);
+    }
+
+    private void loop() {
+        while (true) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            for (SelectionKey key : selector.selectedKeys()) {
+                if (key.isValid()) {
+                    run((Runnable) key.attachment());
+                }
+            }
+            selector.selectedKeys().clear();
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                run(task);
+            }
+        }
+    }
+
+    private static void run(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -27,10 +27,83 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CountDownLatch;
 
 public class Server {
+    private static SelectorLoop selectorLoop;
+
+    /**
+     * Server configuration.
+     *
+     * @param recordDir directory where sessions are recorded for {@link Replay}, or {@code null}
+     *     if recording is disabled
+     * @param workerPool pool of worker JVMs running isolated apps, or {@code null} if all apps run
+     *     in this JVM
+     * @param resultCache cache of results of {@link Memoizable} apps, or {@code null} if results
+     *     are not memoized
+     * @param worker whether this server runs inside a worker JVM, in which case the front-end
+     *     server has already announced the app
+     */
+    public record Options(
+            Path recordDir,
+            WorkerPool workerPool,
+            ResultCache resultCache,
+            boolean worker) {
+        public static final Options DEFAULT = new Options(null, null, null, false);
+        public static final Options WORKER = new Options(null, null, null, true);
+
+        public static Options fromEnv() throws IOException {
+            return fromEnv(System.getenv());
+        }
+
+        public static Options fromEnv(Map<String, String> env) throws IOException {
+            String recordDir = env.get("DAIYOUSEI_RECORD_DIR");
+            String isolatedApps = env.get("DAIYOUSEI_ISOLATED_APPS");
+            WorkerPool workerPool = null;
+            if (isolatedApps != null && !isolatedApps.isBlank()) {
+                String workers = env.get("DAIYOUSEI_WORKERS");
+                String maxRuns = env.get("DAIYOUSEI_WORKER_MAX_RUNS");
+                workerPool =
+                        new WorkerPool(
+                                Set.copyOf(List.of(isolatedApps.split(","))),
+                                workers != null ? Integer.parseInt(workers) : 2,
+                                maxRuns != null ? Integer.parseInt(maxRuns) : 100);
+            }
+            String cacheSize = env.get("DAIYOUSEI_CACHE_SIZE");
+            String cacheDir = env.get("DAIYOUSEI_CACHE_DIR");
+            String cacheDirSize = env.get("DAIYOUSEI_CACHE_DIR_SIZE");
+            ResultCache resultCache = null;
+            if (cacheSize != null || cacheDir != null) {
+                resultCache =
+                        new ResultCache(
+                                cacheSize != null ? Long.parseLong(cacheSize) : 64L << 20,
+                                cacheDir != null ? Path.of(cacheDir) : null,
+                                cacheDirSize != null ? Long.parseLong(cacheDirSize) : 1L << 30);
+            }
+            return new Options(
+                    recordDir != null ? Path.of(recordDir) : null,
+                    workerPool,
+                    resultCache,
+                    false);
+        }
+    }
+
+    private static synchronized SelectorLoop selectorLoop() throws IOException {
+        if (selectorLoop == null) {
+            selectorLoop = new SelectorLoop("async-selector");
+        }
+        return selectorLoop;
+    }
+
     public static void runServer(Path socketPath, CountDownLatch cdl) throws IOException {
+        runServer(socketPath, cdl, Options.DEFAULT);
+    }
+
+    public static void runServer(Path socketPath, CountDownLatch cdl, Options options)
+            throws IOException {
         ServerSocketChannel socket = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
         Files.deleteIfExists(socketPath);
         socket.bind(UnixDomainSocketAddress.of(socketPath));
@@ -39,12 +112,13 @@ public class Server {
         while (true) {
             SocketChannel channel = socket.accept();
             System.err.println("Server accepted connection");
-            Thread thread = new Thread(() -> accept(channel));
+            Thread thread = new Thread(() -> accept(channel, options));
             thread.start();
         }
     }
 
-    private static void accept(SocketChannel sc) {
+    private static void accept(SocketChannel sc, Options options) {
+        boolean detached = false;
         try {
             BencodeEncoder be = new BencodeEncoder(sc);
             be.encodeListStart();
@@ -72,40 +146,149 @@ public class Server {
                 env.put(bd.decodeUTF8(), bd.decodeUTF8());
             }
             bd.decodeListEnd();
+            // Sessions replayed for warm-up are run as usual, but not recorded
+            boolean warmup = env.remove(Replay.WARMUP_ENV) != null;
 
+            String name = Path.of(appName).getFileName().toString();
             Application app =
-                    switch (Path.of(appName).getFileName().toString()) {
+                    switch (name) {
                         case "whoami" -> new WhoamiApp();
                         case "cat" -> new CatApp();
                         default -> null;
                     };
+            AsyncApplication asyncApp =
+                    switch (name) {
+                        case "wc" -> new WcApp();
+                        case "rev" -> new RevApp();
+                        default -> null;
+                    };
+            Memoizable memo = app instanceof Memoizable m ? m : null;
+            if (options.workerPool() != null && options.workerPool().isolates(name)) {
+                app = options.workerPool().application(appName);
+                asyncApp = null;
+            }
 
-            DaiyouseiInputStream in = new DaiyouseiInputStream(bd, "stdin");
-            PrintStream out = new PrintStream(new DaiyouseiOutputStream(be, "stdout"), true);
-            PrintStream err = new PrintStream(new DaiyouseiOutputStream(be, "stderr"), true);
-            try {
-                System.err.println("Running App: args" + args + ", env=" + env + ", cwd=" + cwd);
+            SessionRecorder recorder = null;
+            if (options.recordDir() != null && !warmup) {
+                try {
+                    recorder =
+                            SessionRecorder.create(options.recordDir(), appName, args, cwd, env);
+                } catch (IOException e) {
+                    System.err.println("Unable to record session: " + e);
+                }
+            }
+
+            // Async apps run on the selector loop, which must never block on a slow client
+            AsyncChannel channel = asyncApp != null ? new AsyncChannel(sc, selectorLoop()) : null;
+            BencodeEncoder oe = channel != null ? new BencodeEncoder(channel) : be;
+            DaiyouseiInputStream in = new DaiyouseiInputStream(bd, "stdin", recorder);
+            PrintStream out =
+                    new PrintStream(new DaiyouseiOutputStream(oe, "stdout", recorder), true);
+            PrintStream err =
+                    new PrintStream(new DaiyouseiOutputStream(oe, "stderr", recorder), true);
+            System.err.println("Running App: args" + args + ", env=" + env + ", cwd=" + cwd);
+            if (!options.worker()) {
                 err.println("Running app: " + appName);
-                int ret = app.run(args, env, cwd, in, out, err);
-                System.err.println("App returned " + ret);
-                out.close();
-                err.close();
-                be.encodeUTF8("exitcode");
-                be.encodeInteger(ret);
-                be.encodeListEnd();
-                be.close();
+            }
+
+            if (asyncApp != null) {
+                DaiyouseiPublisher stdin =
+                        new DaiyouseiPublisher(
+                                channel, bd.buffered(), "stdin", recorder, selectorLoop());
+                CompletionStage<Integer> result;
+                try {
+                    result = asyncApp.run(args, env, cwd, stdin, out, err);
+                } catch (Throwable t) {
+                    result = CompletableFuture.failedStage(t);
+                }
+                if (result == null) {
+                    result =
+                            CompletableFuture.failedStage(
+                                    new NullPointerException("App returned null stage"));
+                }
+                SessionRecorder r = recorder;
+                result.whenComplete(
+                        (ret, t) -> {
+                            finish(oe, out, err, r, ret, t, options.worker());
+                            channel.close();
+                        });
+                detached = true;
+                return;
+            }
+
+            Integer ret = null;
+            Throwable failure = null;
+            try {
+                if (options.resultCache() != null && memo != null) {
+                    ret =
+                            options.resultCache()
+                                    .run(appName, memo, app, args, env, cwd, in, out, err);
+                } else {
+                    ret = app.run(args, env, cwd, in, out, err);
+                }
             } catch (Throwable t) {
-                t.printStackTrace(err);
+                failure = t;
             }
+            finish(be, out, err, recorder, ret, failure, options.worker());
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
-            try {
-                sc.close();
-                System.err.println("Closed socket");
-            } catch (IOException e) {
-                e.printStackTrace();
+            if (!detached) {
+                close(sc);
+            }
+        }
+    }
+
+    private static void finish(
+            BencodeEncoder be,
+            PrintStream out,
+            PrintStream err,
+            SessionRecorder recorder,
+            Integer ret,
+            Throwable failure,
+            boolean worker) {
+        try {
+            if (failure == null && ret == null) {
+                failure = new NullPointerException("App returned null exit code");
+            }
+            if (failure != null) {
+                if (!(failure instanceof WorkerPool.AppFailedException)) {
+                    failure.printStackTrace(err);
+                }
+                if (worker) {
+                    // Lets the front-end tell a failed app from a dead worker
+                    out.close();
+                    err.close();
+                    be.encodeListEnd();
+                    be.close();
+                }
+                return;
             }
+            System.err.println("App returned " + ret);
+            out.close();
+            err.close();
+            be.encodeUTF8("exitcode");
+            be.encodeInteger(ret);
+            be.encodeListEnd();
+            be.close();
+            if (recorder != null) {
+                recorder.exitCode(ret);
+            }
+        } catch (IOException e) {
+            e.printStackTrace(err);
+        } finally {
+            if (recorder != null) {
+                recorder.close();
+            }
+        }
+    }
+
+    private static void close(SocketChannel sc) {
+        try {
+            sc.close();
+            System.err.println("Closed socket");
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 }
@@ -0,0 +1,133 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.daiyousei.poc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records a single session to a file, so that it can be replayed later with {@link Replay}.
+ *
+ * <p>The file is a bencoded list that starts with the handshake in the same form as sent by the
+ * client, followed by stdin frames (each prefixed with its time in microseconds since the
+ * handshake), stdout/stderr frames and exit code. Incomplete recordings are deleted on close.
+ *
+ * <p>Stdin frames are decoded only when the app reads them, so their times are consumption times,
+ * not times when the client sent them. They match the client timing only for apps that read stdin
+ * eagerly.
+ */
+public class SessionRecorder implements FrameListener, Closeable {
+    private final Path file;
+    private final BencodeWriter bw;
+    private final long start = System.nanoTime();
+    private boolean finished;
+    private boolean failed;
+
+    private SessionRecorder(Path file) throws IOException {
+        this.file = file;
+        this.bw = BencodeWriter.of(file);
+    }
+
+    public static SessionRecorder create(
+            Path dir, String appName, List<String> args, Path cwd, Map<String, String> env)
+            throws IOException {
+        Files.createDirectories(dir);
+        SessionRecorder recorder =
+                new SessionRecorder(Files.createTempFile(dir, "session-", ".bencode"));
+        try {
+            BencodeWriter bw = recorder.bw;
+            bw.encodeListStart();
+            bw.encodeUTF8("argv");
+            bw.encodeListStart();
+            bw.encodeUTF8(appName);
+            for (String arg : args) {
+                bw.encodeUTF8(arg);
+            }
+            bw.encodeListEnd();
+            bw.encodeUTF8("cwd");
+            bw.encodeUTF8(cwd.toString());
+            bw.encodeUTF8("env");
+            bw.encodeListStart();
+            for (Map.Entry<String, String> entry : env.entrySet()) {
+                bw.encodeUTF8(entry.getKey());
+                bw.encodeUTF8(entry.getValue());
+            }
+            bw.encodeListEnd();
+        } catch (IOException e) {
+            recorder.close();
+            throw e;
+        }
+        return recorder;
+    }
+
+    @Override
+    public synchronized void frame(String label, byte[] data, int off, int len) {
+        if (failed || finished) {
+            return;
+        }
+        try {
+            bw.encodeUTF8(label);
+            if (label.equals("stdin")) {
+                bw.encodeInteger((System.nanoTime() - start) / 1000);
+            }
+            bw.encodeString(data, off, len);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public synchronized void exitCode(int ret) {
+        if (failed || finished) {
+            return;
+        }
+        try {
+            bw.encodeUTF8("exitcode");
+            bw.encodeInteger(ret);
+            bw.encodeListEnd();
+            bw.close();
+            finished = true;
+            System.err.println("Recorded session to " + file);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(IOException e) {
+        System.err.println("Recording to " + file + " failed: " + e);
+        failed = true;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!finished) {
+            try {
+                bw.close();
+            } catch (IOException e) {
+                // Recording is discarded anyway
+            }
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            finished = true;
+        }
+    }
+}
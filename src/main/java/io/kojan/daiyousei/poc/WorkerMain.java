@@ -0,0 +1,49 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.daiyousei.poc;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Entry point of a worker JVM started by {@link WorkerPool}. Announces readiness on stdout and
+ * exits when its stdin is closed, which happens when the front-end server goes away.
+ */
+public class WorkerMain {
+    public static void main(String[] args) throws Exception {
+        Path socketPath = Path.of(args[0]);
+        CountDownLatch cdl = new CountDownLatch(1);
+        Thread server =
+                new Thread(
+                        () -> {
+                            try {
+                                Server.runServer(socketPath, cdl, Server.Options.WORKER);
+                            } catch (IOException e) {
+                                e.printStackTrace();
+                                System.exit(1);
+                            }
+                        });
+        server.setDaemon(true);
+        server.start();
+        cdl.await();
+        System.out.println("ready");
+        System.out.flush();
+        System.setOut(System.err);
+        while (System.in.read() >= 0) {}
+        System.exit(0);
+    }
+}
@@ -0,0 +1,392 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.daiyousei.poc;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of pre-started worker JVMs that run selected apps in isolation from the front-end server.
+ *
+ * <p>Each worker runs its own {@link Server} on a private socket. Invocations of isolated apps are
+ * forwarded to an idle worker frame by frame. A worker is replaced after a given number of runs,
+ * or as soon as it misbehaves or dies, e.g. because an app called {@code System.exit}.
+ */
+public class WorkerPool implements Closeable {
+    private static final long STARTUP_TIMEOUT_SECONDS = 30;
+
+    private final Set<String> apps;
+    private final int size;
+    private final int maxRuns;
+    private final Path dir;
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final Set<Worker> workers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger live = new AtomicInteger();
+    private final AtomicInteger seq = new AtomicInteger();
+    private final Thread shutdownHook = new Thread(this::shutdown);
+    private volatile boolean closed;
+
+    private static class Worker {
+        final Process process;
+        final Path socketPath;
+        int runs;
+
+        Worker(Process process, Path socketPath) {
+            this.process = process;
+            this.socketPath = socketPath;
+        }
+    }
+
+    public WorkerPool(Set<String> apps, int size, int maxRuns) throws IOException {
+        this.apps = Set.copyOf(apps);
+        this.size = size;
+        this.maxRuns = maxRuns;
+        this.dir = Files.createTempDirectory("daiyousei-workers");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        List<Worker> started = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            started.add(start());
+            live.incrementAndGet();
+        }
+        for (Worker worker : started) {
+            awaitReady(worker);
+            idle.add(worker);
+        }
+        System.err.println("Started " + size + " workers for " + this.apps);
+    }
+
+    /** Returns processes of all current workers. */
+    Set<ProcessHandle> processes() {
+        Set<ProcessHandle> processes = new HashSet<>();
+        for (Worker worker : workers) {
+            processes.add(worker.process.toHandle());
+        }
+        return processes;
+    }
+
+    public boolean isolates(String name) {
+        return apps.contains(name);
+    }
+
+    public Application application(String appName) {
+        return (args, env, cwd, in, out, err) -> run(appName, args, env, cwd, in, out, err);
+    }
+
+    private Worker start() throws IOException {
+        Path socketPath = dir.resolve("worker-" + seq.incrementAndGet() + ".socket");
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        ProcessBuilder pb =
+                new ProcessBuilder(
+                        java.toString(),
+                        "-cp",
+                        System.getProperty("java.class.path"),
+                        WorkerMain.class.getName(),
+                        socketPath.toString());
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Worker worker = new Worker(pb.start(), socketPath);
+        workers.add(worker);
+        if (closed) {
+            retire(worker);
+            throw new IOException("Worker pool is closed");
+        }
+        return worker;
+    }
+
+    private void awaitReady(Worker worker) throws IOException {
+        BufferedReader reader =
+                new BufferedReader(
+                        new InputStreamReader(
+                                worker.process.getInputStream(), StandardCharsets.UTF_8));
+        CompletableFuture<String> line = new CompletableFuture<>();
+        Thread thread =
+                new Thread(
+                        () -> {
+                            try {
+                                line.complete(reader.readLine());
+                            } catch (IOException e) {
+                                line.completeExceptionally(e);
+                            }
+                        });
+        thread.setDaemon(true);
+        thread.start();
+        String ready;
+        try {
+            ready = line.get(STARTUP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            ready = null;
+        } catch (InterruptedException e) {
+            retire(worker);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while starting worker");
+        }
+        if (!"ready".equals(ready)) {
+            // Destroying the worker also ends the reader thread
+            retire(worker);
+            throw new IOException("Worker failed to start");
+        }
+        System.err.println("Worker " + worker.process.pid() + " ready");
+    }
+
+    private Worker spawn() throws IOException {
+        Worker worker = start();
+        awaitReady(worker);
+        return worker;
+    }
+
+    private Worker acquire() throws IOException, InterruptedException {
+        while (true) {
+            Worker worker = idle.poll();
+            if (worker == null) {
+                if (live.incrementAndGet() <= size) {
+                    try {
+                        return spawn();
+                    } catch (IOException e) {
+                        live.decrementAndGet();
+                        throw e;
+                    }
+                }
+                live.decrementAndGet();
+                worker = idle.poll(1, TimeUnit.SECONDS);
+            }
+            if (worker != null) {
+                if (worker.process.isAlive()) {
+                    return worker;
+                }
+                recycle(worker);
+            }
+        }
+    }
+
+    private void release(Worker worker, boolean healthy) {
+        worker.runs++;
+        if (healthy && worker.runs < maxRuns && worker.process.isAlive()) {
+            idle.add(worker);
+        } else {
+            recycle(worker);
+        }
+    }
+
+    private void retire(Worker worker) {
+        workers.remove(worker);
+        worker.process.destroyForcibly();
+        try {
+            Files.deleteIfExists(worker.socketPath);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void recycle(Worker worker) {
+        System.err.println(
+                "Recycling worker " + worker.process.pid() + " after " + worker.runs + " runs");
+        retire(worker);
+        Thread thread =
+                new Thread(
+                        () -> {
+                            try {
+                                idle.add(spawn());
+                            } catch (IOException e) {
+                                live.decrementAndGet();
+                                System.err.println("Unable to replace worker: " + e);
+                            }
+                        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Destroys all workers, including those running an app. */
+    @Override
+    public void close() {
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // Already shutting down
+        }
+        shutdown();
+    }
+
+    private void shutdown() {
+        closed = true;
+        for (Worker worker : workers) {
+            retire(worker);
+        }
+        try {
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private int run(
+            String appName,
+            List<String> args,
+            Map<String, String> env,
+            Path cwd,
+            InputStream in,
+            PrintStream out,
+            PrintStream err)
+            throws IOException, InterruptedException, AppFailedException {
+        Worker worker = acquire();
+        boolean healthy = false;
+        Connection conn;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                conn = connect(worker, appName, args, env, cwd);
+                break;
+            } catch (IOException e) {
+                // Nothing was forwarded yet, so another worker can be tried
+                release(worker, false);
+                if (attempt >= size) {
+                    throw e;
+                }
+                worker = acquire();
+            }
+        }
+        try {
+            BencodeEncoder be = conn.be();
+            BencodeDecoder bd = conn.bd();
+
+            Thread pump = new Thread(() -> forwardStdin(in, be));
+            pump.setDaemon(true);
+            pump.start();
+
+            Integer exitCode = null;
+            try {
+                while (bd.hasString()) {
+                    switch (bd.decodeUTF8()) {
+                        case "stdout" -> out.write(bd.decodeString());
+                        case "stderr" -> err.write(bd.decodeString());
+                        case "exitcode" -> exitCode = (int) bd.decodeInteger();
+                        default -> throw new RuntimeException("Protocol error");
+                    }
+                }
+                bd.decodeListEnd();
+                // A session ended without exit code means that the app failed, not the worker
+                healthy = true;
+            } catch (IOException e) {
+                // The worker always ends the session, so it must have died or be dying
+                if (!worker.process.waitFor(1, TimeUnit.SECONDS)) {
+                    throw e;
+                }
+                exitCode = worker.process.exitValue();
+                System.err.println("Worker " + worker.process.pid() + " exited with " + exitCode);
+            }
+            if (exitCode == null) {
+                throw new AppFailedException(appName + " failed in worker " + worker.process.pid());
+            }
+            return exitCode;
+        } finally {
+            try {
+                conn.ch().close();
+            } finally {
+                release(worker, healthy);
+            }
+        }
+    }
+
+    /**
+     * Thrown when an isolated app failed. The worker has already sent the stack trace to the
+     * client, so it should not be reported again.
+     */
+    public static class AppFailedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        AppFailedException(String message) {
+            super(message);
+        }
+    }
+
+    private record Connection(SocketChannel ch, BencodeEncoder be, BencodeDecoder bd) {}
+
+    private static Connection connect(
+            Worker worker,
+            String appName,
+            List<String> args,
+            Map<String, String> env,
+            Path cwd)
+            throws IOException {
+        SocketChannel ch = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            ch.connect(UnixDomainSocketAddress.of(worker.socketPath));
+            BencodeEncoder be = new BencodeEncoder(ch);
+            BencodeDecoder bd = new BencodeDecoder(ch);
+            bd.decodeListStart();
+
+            be.encodeListStart();
+            be.encodeUTF8("argv");
+            be.encodeListStart();
+            be.encodeUTF8(appName);
+            for (String arg : args) {
+                be.encodeUTF8(arg);
+            }
+            be.encodeListEnd();
+            be.encodeUTF8("cwd");
+            be.encodeUTF8(cwd.toString());
+            be.encodeUTF8("env");
+            be.encodeListStart();
+            for (Map.Entry<String, String> entry : env.entrySet()) {
+                be.encodeUTF8(entry.getKey());
+                be.encodeUTF8(entry.getValue());
+            }
+            be.encodeListEnd();
+            be.flush();
+            return new Connection(ch, be, bd);
+        } catch (IOException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    private static void forwardStdin(InputStream in, BencodeEncoder be) {
+        try {
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = in.read(buf)) >= 0) {
+                be.encodeUTF8("stdin");
+                be.encodeString(buf, 0, n);
+                be.flush();
+            }
+            be.encodeListEnd();
+            be.flush();
+        } catch (IOException e) {
+            // Worker has already finished the session
+        }
+    }
+}
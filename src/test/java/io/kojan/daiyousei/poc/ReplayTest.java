@@ -0,0 +1,171 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.daiyousei.poc;
+
+import static io.kojan.daiyousei.poc.TestServer.bytes;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ReplayTest {
+
+    @TempDir Path temp;
+
+    @Test
+    public void testRecordAndReplay() throws Exception {
+        Path recordDir = temp.resolve("rec");
+        Server.Options options = new Server.Options(recordDir, null, null, false);
+        Path socketPath = TestServer.start(temp, options);
+        Recording cat =
+                new Recording(
+                        "cat",
+                        List.of(),
+                        Path.of("/tmp"),
+                        Map.of("FOO", "bar"),
+                        List.of(
+                                new Recording.Input(0, bytes("Hello!\n")),
+                                new Recording.Input(1000, bytes("Good Bye!\n"))),
+                        bytes("Hello!\nGood Bye!\n"),
+                        bytes("Running app: cat\n"),
+                        0);
+
+        Replay.Report report = Replay.run(socketPath, List.of(cat), false, 1, 1);
+        assertEquals(1, report.sessions());
+        assertEquals(0, report.failures());
+        assertEquals(0, report.mismatches());
+
+        List<Recording> recorded = Recording.readAll(List.of(recordDir));
+        assertEquals(1, recorded.size());
+        Recording r = recorded.get(0);
+        assertEquals("cat", r.appName());
+        assertEquals(List.of(), r.args());
+        assertEquals(Path.of("/tmp"), r.cwd());
+        assertEquals(Map.of("FOO", "bar"), r.env());
+        assertEquals(2, r.stdin().size());
+        assertArrayEquals(bytes("Good Bye!\n"), r.stdin().get(1).data());
+        assertArrayEquals(cat.stdout(), r.stdout());
+        assertArrayEquals(cat.stderr(), r.stderr());
+        assertEquals(0, r.exitCode());
+
+        report = Replay.run(socketPath, recorded, true, 4, 10);
+        assertEquals(10, report.sessions());
+        assertEquals(0, report.failures());
+        assertEquals(0, report.mismatches());
+    }
+
+    @Test
+    public void testWarmupNotRecorded() throws Exception {
+        Path recordDir = temp.resolve("rec");
+        Path socketPath =
+                TestServer.start(temp, new Server.Options(recordDir, null, null, false));
+        Recording whoami =
+                new Recording(
+                        "whoami",
+                        List.of(),
+                        Path.of("/tmp"),
+                        Map.of("USER", "johndoe"),
+                        List.of(),
+                        bytes("You are johndoe\n"),
+                        bytes("Running app: whoami\n"),
+                        0);
+
+        // Client sessions running concurrently with warm-up are still recorded
+        Thread client =
+                new Thread(
+                        () -> {
+                            try {
+                                Replay.run(socketPath, List.of(whoami), true, 1, 2);
+                            } catch (InterruptedException e) {
+                                throw new RuntimeException(e);
+                            }
+                        });
+        client.start();
+        Replay.Report report = Replay.run(socketPath, List.of(whoami), true, 1, 3, true);
+        client.join();
+        assertEquals(0, report.mismatches());
+        List<Recording> recorded = Recording.readAll(List.of(recordDir));
+        assertEquals(2, recorded.size());
+        assertEquals(Map.of("USER", "johndoe"), recorded.get(0).env());
+    }
+
+    @Test
+    public void testLargeRecording() throws Exception {
+        byte[] data = new byte[4 << 20];
+        long start = System.nanoTime();
+        try (SessionRecorder recorder =
+                SessionRecorder.create(temp, "cat", List.of(), Path.of("/tmp"), Map.of())) {
+            for (int off = 0; off < data.length; off += 4096) {
+                recorder.frame("stdin", data, off, 4096);
+                recorder.frame("stdout", data, off, 4096);
+            }
+            recorder.exitCode(0);
+        }
+        List<Recording> recorded = Recording.readAll(List.of(temp));
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(1, recorded.size());
+        assertEquals(1024, recorded.get(0).stdin().size());
+        assertArrayEquals(data, recorded.get(0).stdout());
+        assertTrue(elapsed < 1_000_000_000L, "took " + elapsed / 1_000_000 + " ms");
+    }
+
+    @Test
+    public void testReplayMismatch() throws Exception {
+        Path socketPath = TestServer.start(temp, Server.Options.DEFAULT);
+        Recording whoami =
+                new Recording(
+                        "whoami",
+                        List.of(),
+                        Path.of("/tmp"),
+                        Map.of("USER", "johndoe"),
+                        List.of(),
+                        bytes("You are janedoe\n"),
+                        bytes("Running app: whoami\n"),
+                        0);
+
+        Replay.Report report = Replay.run(socketPath, List.of(whoami), true, 1, 3);
+        assertEquals(3, report.sessions());
+        assertEquals(0, report.failures());
+        assertEquals(3, report.mismatches());
+        assertEquals(3, report.latencies().length);
+    }
+
+    @Test
+    public void testReplayFailure() throws Exception {
+        Path socketPath = TestServer.start(temp, Server.Options.DEFAULT);
+        Recording unknown =
+                new Recording(
+                        "unknown",
+                        List.of(),
+                        Path.of("/tmp"),
+                        Map.of(),
+                        List.of(),
+                        new byte[0],
+                        new byte[0],
+                        0);
+
+        Replay.Report report = Replay.run(socketPath, List.of(unknown), true, 1, 2);
+        assertEquals(2, report.sessions());
+        assertEquals(2, report.failures());
+        assertEquals(0, report.latencies().length);
+    }
+}
@@ -0,0 +1,203 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.daiyousei.poc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ResultCacheTest {
+
+    @TempDir Path temp;
+
+    CatApp cat = new CatApp();
+    int runs;
+    String stdout;
+    String stderr;
+
+    Runnable beforeRun = () -> {};
+
+    int run(ResultCache cache, String... args) throws Throwable {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        Application counting =
+                (a, env, cwd, in, o, e) -> {
+                    runs++;
+                    beforeRun.run();
+                    return cat.run(a, env, cwd, in, o, e);
+                };
+        int ret =
+                cache.run(
+                        "cat",
+                        cat,
+                        counting,
+                        List.of(args),
+                        Map.of(),
+                        temp,
+                        new ByteArrayInputStream(new byte[0]),
+                        new PrintStream(out, true),
+                        new PrintStream(err, true));
+        stdout = out.toString(StandardCharsets.UTF_8);
+        stderr = err.toString(StandardCharsets.UTF_8);
+        return ret;
+    }
+
+    long countEntries(Path dir) throws Exception {
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.count();
+        }
+    }
+
+    @Test
+    public void testMemoize() throws Throwable {
+        ResultCache cache = new ResultCache(1 << 20, null, 0);
+        Files.writeString(temp.resolve("a.txt"), "foo\n");
+        Files.writeString(temp.resolve("b.txt"), "bar\n");
+
+        assertEquals(0, run(cache, "a.txt", "b.txt"));
+        assertEquals(1, runs);
+        assertEquals(0, run(cache, "a.txt", "b.txt"));
+        assertEquals(1, runs);
+        assertEquals("foo\nbar\n", stdout);
+
+        assertEquals(0, run(cache, "b.txt", "a.txt"));
+        assertEquals(2, runs);
+        assertEquals("bar\nfoo\n", stdout);
+
+        Files.writeString(temp.resolve("a.txt"), "foo foo\n");
+        assertEquals(0, run(cache, "a.txt", "b.txt"));
+        assertEquals(3, runs);
+        assertEquals("foo foo\nbar\n", stdout);
+    }
+
+    @Test
+    public void testInputChangedDuringRun() throws Throwable {
+        ResultCache cache = new ResultCache(1 << 20, null, 0);
+        Path a = temp.resolve("a.txt");
+        FileTime mtime = FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS));
+        Files.writeString(a, "foo\n");
+        Files.setLastModifiedTime(a, mtime);
+        beforeRun =
+                () -> {
+                    try {
+                        Files.writeString(a, "bar bar\n");
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                };
+        assertEquals(0, run(cache, "a.txt"));
+        assertEquals("bar bar\n", stdout);
+
+        beforeRun = () -> {};
+        Files.writeString(a, "foo\n");
+        Files.setLastModifiedTime(a, mtime);
+        assertEquals(0, run(cache, "a.txt"));
+        assertEquals(2, runs);
+        assertEquals("foo\n", stdout);
+    }
+
+    @Test
+    public void testMemoizeFailure() throws Throwable {
+        ResultCache cache = new ResultCache(1 << 20, null, 0);
+        assertEquals(1, run(cache, "missing.txt"));
+        String expected = stderr;
+        assertEquals(1, run(cache, "missing.txt"));
+        assertEquals(1, runs);
+        assertEquals(expected, stderr);
+
+        Files.writeString(temp.resolve("missing.txt"), "found\n");
+        assertEquals(0, run(cache, "missing.txt"));
+        assertEquals(2, runs);
+        assertEquals("found\n", stdout);
+    }
+
+    @Test
+    public void testStdinNotMemoized() throws Throwable {
+        ResultCache cache = new ResultCache(1 << 20, null, 0);
+        run(cache);
+        run(cache);
+        assertEquals(2, runs);
+    }
+
+    @Test
+    public void testDiskStore() throws Throwable {
+        Path dir = temp.resolve("cache");
+        Files.writeString(temp.resolve("a.txt"), "foo\n");
+        Files.writeString(temp.resolve("b.txt"), "bar\n");
+
+        ResultCache cache = new ResultCache(0, dir, 1 << 20);
+        run(cache, "a.txt");
+        run(cache, "b.txt");
+        assertEquals(2, countEntries(dir));
+
+        cache = new ResultCache(1 << 20, dir, 1 << 20);
+        assertEquals(0, run(cache, "a.txt"));
+        assertEquals("foo\n", stdout);
+        assertEquals(0, run(cache, "b.txt"));
+        assertEquals("bar\n", stdout);
+        assertEquals(2, runs);
+
+        cache = new ResultCache(1 << 20, dir, 0);
+        assertEquals(0, countEntries(dir));
+    }
+
+    @Test
+    public void testDiskStoreLargeOutput() throws Throwable {
+        Path dir = temp.resolve("cache");
+        Files.write(temp.resolve("big.txt"), new byte[4 << 20]);
+        ResultCache cache = new ResultCache(0, dir, 64 << 20);
+
+        long start = System.nanoTime();
+        cat.run(
+                List.of("big.txt"),
+                Map.of(),
+                temp,
+                new ByteArrayInputStream(new byte[0]),
+                new PrintStream(new ByteArrayOutputStream(), true),
+                new PrintStream(new ByteArrayOutputStream(), true));
+        long direct = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        assertEquals(0, run(cache, "big.txt"));
+        long miss = System.nanoTime() - start;
+        start = System.nanoTime();
+        assertEquals(0, run(cache, "big.txt"));
+        long hit = System.nanoTime() - start;
+
+        assertEquals(1, runs);
+        assertEquals(4 << 20, stdout.length());
+        // Storing and loading the entry must cost about as much as running cat, not seconds
+        long slack = 500_000_000;
+        assertTrue(miss < 2 * direct + slack, "store took " + miss / 1_000_000 + " ms");
+        assertTrue(hit < direct + slack, "hit took " + hit / 1_000_000 + " ms");
+    }
+}
@@ -15,6 +15,8 @@
  */
 package io.kojan.daiyousei.poc;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.net.StandardProtocolFamily;
@@ -22,33 +24,29 @@ import java.net.UnixDomainSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.concurrent.CountDownLatch;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 public class ServerTest {
 
+    Path temp;
+    Path socketPath;
     SocketChannel ch;
     ByteBuffer bb = ByteBuffer.allocate(1);
 
     @BeforeEach
     public void setUp(@TempDir Path temp) throws Exception {
-        Path socketPath = temp.resolve("my.socket");
-        CountDownLatch cdl = new CountDownLatch(1);
-        Thread server =
-                new Thread(
-                        () -> {
-                            try {
-                                Server.runServer(socketPath, cdl);
-                            } catch (Exception e) {
-                                throw new RuntimeException(e);
-                            }
-                        });
-        server.setDaemon(true);
-        server.start();
-        cdl.await();
+        this.temp = temp;
+        socketPath = TestServer.start(temp, Server.Options.DEFAULT);
         ch = SocketChannel.open(StandardProtocolFamily.UNIX);
         ch.connect(UnixDomainSocketAddress.of(socketPath));
     }
@@ -154,4 +152,182 @@ public class ServerTest {
         recv("8:exitcode", "i0e");
         recv("e");
     }
+
+    @Test
+    public void testWc() throws Exception {
+        recv("l");
+        send("l");
+        send("4:argv", "l", "2:wc", "e");
+        send("3:cwd", "4:/tmp");
+        send("3:env", "l", "e");
+        recv("6:stderr", "16:Running app: wc\n");
+        send("5:stdin", "13:Hello world!\n");
+        send("5:stdin", "4:Bye\n");
+        send("e");
+        recv("6:stdout", "7:2 3 17\n");
+        recv("8:exitcode", "i0e");
+        recv("e");
+    }
+
+    @Test
+    public void testWcIdleSessionsHoldNoThreads() throws Exception {
+        int threads = Thread.activeCount();
+        List<SocketChannel> sessions = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ch = SocketChannel.open(StandardProtocolFamily.UNIX);
+            ch.connect(UnixDomainSocketAddress.of(socketPath));
+            sessions.add(ch);
+            recv("l");
+            send("l");
+            send("4:argv", "l", "2:wc", "e");
+            send("3:cwd", "4:/tmp");
+            send("3:env", "l", "e");
+            recv("6:stderr", "16:Running app: wc\n");
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (Thread.activeCount() - threads >= 10 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(Thread.activeCount() - threads < 10);
+        for (SocketChannel session : sessions) {
+            ch = session;
+            send("5:stdin", "4:Bye\n");
+            send("e");
+            recv("6:stdout", "6:1 1 4\n");
+            recv("8:exitcode", "i0e");
+            recv("e");
+        }
+    }
+
+    @Test
+    public void testRev() throws Exception {
+        recv("l");
+        send("l");
+        send("4:argv", "l", "3:rev", "e");
+        send("3:cwd", "4:/tmp");
+        send("3:env", "l", "e");
+        recv("6:stderr", "17:Running app: rev\n");
+        send("5:stdin", "8:Hello wo");
+        send("5:stdin", "9:rld!\nBye\n");
+        recv("6:stdout", "13:!dlrow olleH\n");
+        recv("6:stdout", "4:eyB\n");
+        send("e");
+        recv("8:exitcode", "i0e");
+        recv("e");
+    }
+
+    void testWcSession() throws Exception {
+        ch = SocketChannel.open(StandardProtocolFamily.UNIX);
+        ch.connect(UnixDomainSocketAddress.of(socketPath));
+        testWc();
+        ch.close();
+    }
+
+    @Test
+    public void testRevClientNotReadingOutput() throws Exception {
+        recv("l");
+        send("l");
+        send("4:argv", "l", "3:rev", "e");
+        send("3:cwd", "4:/tmp");
+        send("3:env", "l", "e");
+        recv("6:stderr", "17:Running app: rev\n");
+        // Keeps sending input, but never reads the output
+        SocketChannel stalled = ch;
+        Thread sender =
+                new Thread(
+                        () -> {
+                            byte[] line = "0123456789abcdef\n".repeat(4096).getBytes();
+                            ByteBuffer frame =
+                                    ByteBuffer.wrap(
+                                            ("5:stdin" + line.length + ":" + new String(line))
+                                                    .getBytes());
+                            try {
+                                while (true) {
+                                    stalled.write(frame);
+                                    frame.rewind();
+                                }
+                            } catch (Exception e) {
+                                // Closed by the test
+                            }
+                        });
+        sender.setDaemon(true);
+        sender.start();
+        Thread.sleep(500);
+
+        CompletableFuture.runAsync(
+                        () -> {
+                            try {
+                                testWcSession();
+                            } catch (Exception e) {
+                                throw new RuntimeException(e);
+                            }
+                        })
+                .get(10, TimeUnit.SECONDS);
+        stalled.close();
+    }
+
+    static String str(String s) {
+        return s.getBytes(StandardCharsets.UTF_8).length + ":" + s;
+    }
+
+    void catFile(Path socketPath, Path file, String content) throws Exception {
+        ch = SocketChannel.open(StandardProtocolFamily.UNIX);
+        ch.connect(UnixDomainSocketAddress.of(socketPath));
+        recv("l");
+        send("l");
+        send("4:argv", "l", "3:cat", str(file.toString()), "e");
+        send("3:cwd", "4:/tmp");
+        send("3:env", "l", "e");
+        send("e");
+        recv("6:stderr", "17:Running app: cat\n");
+        recv("6:stdout", str(content));
+        recv("8:exitcode", "i0e");
+        recv("e");
+        ch.close();
+    }
+
+    long countFiles(Path dir) throws Exception {
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.count();
+        }
+    }
+
+    void testCatCached(Map<String, String> env) throws Exception {
+        Server.Options options = Server.Options.fromEnv(env);
+        try {
+            Path cacheDir = Path.of(env.get("DAIYOUSEI_CACHE_DIR"));
+            Path socketPath =
+                    TestServer.start(Files.createDirectory(temp.resolve("cached")), options);
+            Path file = temp.resolve("file.txt");
+            Files.writeString(file, "Hello!\n");
+            catFile(socketPath, file, "Hello!\n");
+            assertEquals(1, countFiles(cacheDir));
+            catFile(socketPath, file, "Hello!\n");
+            assertEquals(1, countFiles(cacheDir));
+            Files.writeString(file, "Good Bye!\n");
+            catFile(socketPath, file, "Good Bye!\n");
+            assertEquals(2, countFiles(cacheDir));
+        } finally {
+            if (options.workerPool() != null) {
+                options.workerPool().close();
+            }
+        }
+    }
+
+    @Test
+    public void testCatCached() throws Exception {
+        testCatCached(Map.of("DAIYOUSEI_CACHE_DIR", temp.resolve("cache").toString()));
+    }
+
+    @Test
+    public void testCatCachedIsolated() throws Exception {
+        testCatCached(
+                Map.of(
+                        "DAIYOUSEI_CACHE_DIR",
+                        temp.resolve("cache").toString(),
+                        "DAIYOUSEI_ISOLATED_APPS",
+                        "cat",
+                        "DAIYOUSEI_WORKERS",
+                        "1"));
+    }
 }
@@ -0,0 +1,44 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.daiyousei.poc;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+
+class TestServer {
+    static Path start(Path temp, Server.Options options) throws Exception {
+        Path socketPath = temp.resolve("my.socket");
+        CountDownLatch cdl = new CountDownLatch(1);
+        Thread server =
+                new Thread(
+                        () -> {
+                            try {
+                                Server.runServer(socketPath, cdl, options);
+                            } catch (Exception e) {
+                                throw new RuntimeException(e);
+                            }
+                        });
+        server.setDaemon(true);
+        server.start();
+        cdl.await();
+        return socketPath;
+    }
+
+    static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,190 @@
+/*-
+ * Copyright (c) 2025 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.daiyousei.poc;
+
+import static io.kojan.daiyousei.poc.TestServer.bytes;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class WorkerPoolTest {
+
+    WorkerPool pool;
+    Path socketPath;
+
+    @BeforeEach
+    public void setUp(@TempDir Path temp) throws Exception {
+        pool = new WorkerPool(Set.of("cat", "whoami", "unknown"), 1, 2);
+        socketPath = TestServer.start(temp, new Server.Options(null, pool, null, false));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pool.close();
+    }
+
+    static final Recording CAT =
+            new Recording(
+                    "cat",
+                    List.of(),
+                    Path.of("/tmp"),
+                    Map.of(),
+                    List.of(
+                            new Recording.Input(0, bytes("Hello!\n")),
+                            new Recording.Input(0, bytes("Good Bye!\n"))),
+                    bytes("Hello!\nGood Bye!\n"),
+                    bytes("Running app: cat\n"),
+                    0);
+
+    static final Recording CAT_MISSING =
+            new Recording(
+                    "cat",
+                    List.of("/tmp/dummy-missing"),
+                    Path.of("/tmp"),
+                    Map.of(),
+                    List.of(),
+                    new byte[0],
+                    bytes(
+                            "Running app: cat\n"
+                                    + "cat: Error reading /tmp/dummy-missing: java.nio.file.NoSuchFileException: /tmp/dummy-missing\n"),
+                    1);
+
+    static final Recording WHOAMI =
+            new Recording(
+                    "whoami",
+                    List.of(),
+                    Path.of("/tmp"),
+                    Map.of("USER", "johndoe"),
+                    List.of(),
+                    bytes("You are johndoe\n"),
+                    bytes("Running app: whoami\n"),
+                    0);
+
+    void killWorkers() throws Exception {
+        for (ProcessHandle process : pool.processes()) {
+            process.destroyForcibly();
+            process.onExit().get();
+        }
+    }
+
+    @Test
+    public void testIsolatedApps() throws Exception {
+        Replay.Report report =
+                Replay.run(socketPath, List.of(CAT, CAT_MISSING, WHOAMI), true, 1, 3);
+        assertEquals(9, report.sessions());
+        assertEquals(0, report.failures());
+        assertEquals(0, report.mismatches());
+    }
+
+    @Test
+    public void testWorkerDiedBetweenRuns() throws Exception {
+        Replay.Report report = Replay.run(socketPath, List.of(WHOAMI), true, 1, 1);
+        assertEquals(0, report.failures() + report.mismatches());
+        killWorkers();
+        report = Replay.run(socketPath, List.of(WHOAMI), true, 1, 1);
+        assertEquals(0, report.failures() + report.mismatches());
+    }
+
+    @Test
+    public void testWorkerDiedDuringRun() throws Exception {
+        try (SocketChannel ch = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            ch.connect(UnixDomainSocketAddress.of(socketPath));
+            BencodeEncoder be = new BencodeEncoder(ch);
+            BencodeDecoder bd = new BencodeDecoder(ch);
+            bd.decodeListStart();
+            be.encodeListStart();
+            be.encodeUTF8("argv");
+            be.encodeListStart();
+            be.encodeUTF8("cat");
+            be.encodeListEnd();
+            be.encodeUTF8("cwd");
+            be.encodeUTF8("/tmp");
+            be.encodeUTF8("env");
+            be.encodeListStart();
+            be.encodeListEnd();
+            be.encodeUTF8("stdin");
+            be.encodeUTF8("Hello!\n");
+            be.flush();
+
+            bd.consume("stderr");
+            assertArrayEquals(bytes("Running app: cat\n"), bd.decodeString());
+            bd.consume("stdout");
+            assertArrayEquals(bytes("Hello!\n"), bd.decodeString());
+
+            killWorkers();
+            bd.consume("exitcode");
+            assertEquals(137, bd.decodeInteger());
+            bd.decodeListEnd();
+        }
+    }
+
+    @Test
+    public void testAppFailed() throws Exception {
+        Set<ProcessHandle> workers = pool.processes();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        long start = System.nanoTime();
+        try (SocketChannel ch = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            ch.connect(UnixDomainSocketAddress.of(socketPath));
+            BencodeEncoder be = new BencodeEncoder(ch);
+            BencodeDecoder bd = new BencodeDecoder(ch);
+            bd.decodeListStart();
+            be.encodeListStart();
+            be.encodeUTF8("argv");
+            be.encodeListStart();
+            be.encodeUTF8("unknown");
+            be.encodeListEnd();
+            be.encodeUTF8("cwd");
+            be.encodeUTF8("/tmp");
+            be.encodeUTF8("env");
+            be.encodeListStart();
+            be.encodeListEnd();
+            be.encodeListEnd();
+            be.flush();
+
+            try {
+                while (true) {
+                    bd.consume("stderr");
+                    stderr.writeBytes(bd.decodeString());
+                }
+            } catch (EOFException e) {
+                // Failed app ends the session without exit code
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        String trace = stderr.toString(StandardCharsets.UTF_8);
+        assertTrue(trace.contains("NullPointerException"), trace);
+        assertFalse(trace.contains("EOFException"), trace);
+        assertTrue(elapsed < 1_000_000_000L, "took " + elapsed / 1_000_000 + " ms");
+        assertEquals(workers, pool.processes());
+    }
+}